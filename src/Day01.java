@@ -1,11 +1,26 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class Day01 {
+  // How much of the file gets mapped at once. Keeps us under the 2GB MappedByteBuffer limit on huge logs.
+  static final long MAP_WINDOW = 1L << 26;
+
   public static void main(String[] args) throws IOException {
     List<String> rotations = readInput("./src/Day1Input.txt");
     int password = solve(rotations);
     System.out.println("Password: " + password);
+
+    long[] streamed = solveStreaming("./src/Day1Input.txt");
+    System.out.println("Streamed Part 1: " + streamed[0] + " | Part 2: " + streamed[1]);
+
+    long[] parallel = solveParallel("./src/Day1Input.txt");
+    System.out.println("Parallel Part 1: " + parallel[0] + " | Part 2: " + parallel[1]);
   }
 
   public static int solve(List<String> rotations) {
@@ -54,6 +69,199 @@ public class Day01 {
     return zeroCount;
   }
 
+  /**
+   * Runs both parts in one pass straight off a memory-mapped file, no Strings per line.
+   * Returns {part1 zero stops, part2 zero crossings}.
+   */
+  public static long[] solveStreaming(String filename) throws IOException {
+    int position = 50;
+    long zeroStops = 0;
+    long zeroCrossings = 0;
+
+    // Parse state survives across map windows, so a rotation split over a window edge is fine.
+    char direction = 0;
+    int distance = 0;
+
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, size - offset));
+        while (buffer.hasRemaining()) {
+          byte b = buffer.get();
+          if (b == 'L' || b == 'R') {
+            direction = (char) b;
+            distance = 0;
+          } else if (b >= '0' && b <= '9') {
+            distance = distance * 10 + (b - '0');
+          } else if (b == '\n' && direction != 0) {
+            zeroCrossings += countZeroCrossings(position, distance, direction);
+            position = rotate(position, distance, direction);
+            if (position == 0) zeroStops++;
+            direction = 0;
+          }
+        }
+      }
+    }
+
+    // Last line might not have a trailing newline
+    if (direction != 0) {
+      zeroCrossings += countZeroCrossings(position, distance, direction);
+      position = rotate(position, distance, direction);
+      if (position == 0) zeroStops++;
+    }
+
+    return new long[] {zeroStops, zeroCrossings};
+  }
+
+  public static long[] solveParallel(String filename) throws IOException {
+    return solveParallel(filename, MAP_WINDOW);
+  }
+
+  /**
+   * Same answers as solveStreaming, but the file is cut into newline aligned chunks that are
+   * summarized on their own cores and then stitched back together in order.
+   */
+  public static long[] solveParallel(String filename, long chunkBytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      long[] bounds = lineAlignedBounds(channel, chunkBytes);
+
+      // reduce on an ordered parallel stream keeps the chunks in file order, and then() is associative
+      DialSegment whole = IntStream.range(0, bounds.length - 1)
+              .parallel()
+              .mapToObj(i -> {
+                try {
+                  return summarize(channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]));
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              })
+              .reduce(DialSegment.IDENTITY, DialSegment::then);
+
+      return new long[] {whole.zeroStops()[50], whole.zeroCrossings()[50]};
+    }
+  }
+
+  /**
+   * What a run of rotations does for every possible starting offset of the dial.
+   * shift is how far the run turns the dial (mod 100), and the arrays are indexed by starting offset.
+   */
+  record DialSegment(int shift, long[] zeroStops, long[] zeroCrossings) {
+    static final DialSegment IDENTITY = new DialSegment(0, new long[100], new long[100]);
+
+    // This run followed by next: next starts wherever this one left the dial.
+    DialSegment then(DialSegment next) {
+      long[] stops = new long[100];
+      long[] crossings = new long[100];
+      for (int s = 0; s < 100; s++) {
+        int mid = (s + shift) % 100;
+        stops[s] = zeroStops[s] + next.zeroStops[mid];
+        crossings[s] = zeroCrossings[s] + next.zeroCrossings[mid];
+      }
+      return new DialSegment((shift + next.shift) % 100, stops, crossings);
+    }
+  }
+
+  static DialSegment summarize(ByteBuffer buffer) {
+    // Track the dial relative to an unknown start s. Every rotation crosses zero (distance / 100) times,
+    // plus once more when s lands in a window of (distance % 100) offsets, so we just add to that window.
+    int shift = 0;
+    long fullTurns = 0;
+    long[] stops = new long[100];
+    long[] windowDiff = new long[101];
+
+    char direction = 0;
+    int distance = 0;
+    while (true) {
+      byte b = buffer.hasRemaining() ? buffer.get() : (byte) '\n';
+      if (b == 'L' || b == 'R') {
+        direction = (char) b;
+        distance = 0;
+      } else if (b >= '0' && b <= '9') {
+        distance = distance * 10 + (b - '0');
+      } else if (b == '\n' && direction != 0) {
+        int rest = distance % 100;
+        fullTurns += distance / 100;
+        if (direction == 'R') {
+          // position (s + shift) in [100 - rest, 99] ticks over 0
+          addWindow(windowDiff, Math.floorMod(100 - rest - shift, 100), rest);
+          shift = (shift + rest) % 100;
+        } else {
+          // position (s + shift) in [1, rest] hits 0 on the way down
+          addWindow(windowDiff, Math.floorMod(1 - shift, 100), rest);
+          shift = Math.floorMod(shift - rest, 100);
+        }
+        // Part 1 only cares when we stop on 0
+        stops[(100 - shift) % 100]++;
+        direction = 0;
+      }
+      if (!buffer.hasRemaining() && b == '\n') break;
+    }
+
+    long[] crossings = new long[100];
+    long running = 0;
+    for (int s = 0; s < 100; s++) {
+      running += windowDiff[s];
+      crossings[s] = fullTurns + running;
+    }
+    return new DialSegment(shift, stops, crossings);
+  }
+
+  // Add 1 to a wrap-around window of offsets [from, from + length) via a difference array
+  private static void addWindow(long[] diff, int from, int length) {
+    if (length == 0) return;
+    diff[from]++;
+    if (from + length <= 100) {
+      diff[from + length]--;
+    } else {
+      diff[100]--;
+      diff[0]++;
+      diff[from + length - 100]--;
+    }
+  }
+
+  static long[] lineAlignedBounds(FileChannel channel, long chunkBytes) throws IOException {
+    long size = channel.size();
+    // Each chunk gets mapped on its own, so it has to fit in one buffer
+    chunkBytes = Math.max(1, Math.min(chunkBytes, Integer.MAX_VALUE - 1024));
+
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    ByteBuffer scratch = ByteBuffer.allocate(256);
+    long pos = 0;
+    while (pos < size) {
+      long next = pos + chunkBytes;
+      if (next >= size) {
+        pos = size;
+      } else {
+        // slide forward until the chunk ends right after a newline
+        long probe = next - 1;
+        long found = -1;
+        while (found < 0 && probe < size) {
+          scratch.clear();
+          int read = channel.read(scratch, probe);
+          if (read <= 0) break;
+          for (int i = 0; i < read; i++) {
+            if (scratch.get(i) == '\n') {
+              found = probe + i + 1;
+              break;
+            }
+          }
+          probe += read;
+        }
+        pos = (found < 0) ? size : found;
+      }
+      bounds.add(pos);
+    }
+    return bounds.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  public static int rotate(int position, int distance, char direction) {
+    if (direction == 'L') {
+      return ((position - distance) % 100 + 100) % 100;
+    }
+    return (position + distance) % 100;
+  }
+
   public static int countZeroCrossings(int start, int distance, char direction) {
     int crossings = 0;
 
@@ -1,7 +1,10 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 public class Day2 {
   public static void main(String[] args) throws IOException {
@@ -16,10 +19,9 @@ public class Day2 {
     List<Long> simpleCandidates = generatedDoubledNumbers(maxHalfLength);
     System.out.println("Number of candidates: " + simpleCandidates.size());
 
-    long sum = simpleCandidates.stream()
-            .filter(candidate -> isInAnyRange(candidate, ranges))
-            .mapToLong(Long::longValue)
-            .sum();
+    // Doubled numbers come out ascending, so one sweep through the sorted index covers them all
+    RangeIndex index = RangeIndex.of(ranges);
+    long sum = index.sumAscending(simpleCandidates.stream().mapToLong(Long::longValue).toArray());
     System.out.println("Sum: " + sum);
     System.out.println("---Part Two---");
 
@@ -28,10 +30,120 @@ public class Day2 {
     System.out.println("Number of full candidates: " + fullCandidates.size());
 
     long fullSum = fullCandidates.stream()
-            .filter(candidate -> isInAnyRange(candidate, ranges))
+            .filter(candidate -> isInAnyRange(candidate, index))
             .mapToLong(Long::longValue)
             .sum();
     System.out.println("Full Sum for Part Two: " + fullSum);
+
+    System.out.println("---Primitive---");
+    long[] doubled = generateDoubledArray(maxHalfLength);
+    long[] repeated = generateRepeatedArray(maxDigits);
+    System.out.println("Part One: " + LongStream.of(doubled).parallel().filter(index::contains).sum());
+    System.out.println("Part Two: " + LongStream.of(repeated).parallel().filter(index::contains).sum());
+
+    System.out.println("---Closed Form---");
+    System.out.println("Part One: " + sumDoubledNumbers(ranges));
+    System.out.println("Part Two: " + sumRepeatedNumbers(ranges));
+  }
+
+  // Part 1 without building candidates: sum every number in the ranges that is some half repeated twice.
+  public static BigInteger sumDoubledNumbers(long[][] ranges) {
+    BigInteger total = BigInteger.ZERO;
+    for (long[] range : mergeRanges(ranges)) {
+      for (int len = digitCount(range[0]); len <= digitCount(range[1]); len++) {
+        if (len % 2 != 0) continue;
+        long[] clipped = clipToLength(range, len);
+        total = total.add(sumRepeatedBlock(clipped[0], clipped[1], len, len / 2));
+      }
+    }
+    return total;
+  }
+
+  // Part 2 without building candidates. A len digit number can repeat a block of any proper divisor length,
+  // so add up the maximal block lengths (len / prime) and inclusion-exclusion out the overlaps,
+  // since repeating with block a and block b means repeating with block gcd(a, b).
+  public static BigInteger sumRepeatedNumbers(long[][] ranges) {
+    BigInteger total = BigInteger.ZERO;
+    for (long[] range : mergeRanges(ranges)) {
+      for (int len = digitCount(range[0]); len <= digitCount(range[1]); len++) {
+        long[] clipped = clipToLength(range, len);
+        List<Integer> primes = primeFactors(len);
+
+        for (int mask = 1; mask < (1 << primes.size()); mask++) {
+          int product = 1;
+          for (int i = 0; i < primes.size(); i++) {
+            if ((mask & (1 << i)) != 0) product *= primes.get(i);
+          }
+          BigInteger blockSum = sumRepeatedBlock(clipped[0], clipped[1], len, len / product);
+          // odd number of primes adds, even subtracts
+          total = (Integer.bitCount(mask) % 2 == 1) ? total.add(blockSum) : total.subtract(blockSum);
+        }
+      }
+    }
+    return total;
+  }
+
+  // Sum of the numbers in [lo, hi] that are a k digit block repeated to fill len digits.
+  // Those are just block * 100..0100..01, so it's an arithmetic series over the allowed blocks.
+  static BigInteger sumRepeatedBlock(long lo, long hi, int len, int k) {
+    BigInteger multiplier = BigInteger.TEN.pow(len).subtract(BigInteger.ONE)
+            .divide(BigInteger.TEN.pow(k).subtract(BigInteger.ONE));
+    BigInteger low = BigInteger.valueOf(lo);
+    BigInteger high = BigInteger.valueOf(hi);
+
+    // ceil(lo / multiplier) and floor(hi / multiplier), kept to k digit blocks with no leading zero
+    BigInteger firstBlock = BigInteger.TEN.pow(k - 1).max(low.add(multiplier).subtract(BigInteger.ONE).divide(multiplier));
+    BigInteger lastBlock = BigInteger.TEN.pow(k).subtract(BigInteger.ONE).min(high.divide(multiplier));
+    if (firstBlock.compareTo(lastBlock) > 0) return BigInteger.ZERO;
+
+    BigInteger count = lastBlock.subtract(firstBlock).add(BigInteger.ONE);
+    return firstBlock.add(lastBlock).multiply(count).shiftRight(1).multiply(multiplier);
+  }
+
+  // Trim a range down to just its len digit numbers
+  static long[] clipToLength(long[] range, int len) {
+    long lowest = (len == 1) ? 0 : pow10(len - 1);
+    long highest = (len >= 19) ? Long.MAX_VALUE : pow10(len) - 1;
+    return new long[] {Math.max(range[0], lowest), Math.min(range[1], highest)};
+  }
+
+  static List<Integer> primeFactors(int n) {
+    List<Integer> primes = new ArrayList<>();
+    for (int p = 2; p * p <= n; p++) {
+      if (n % p == 0) {
+        primes.add(p);
+        while (n % p == 0) n /= p;
+      }
+    }
+    if (n > 1) primes.add(n);
+    return primes;
+  }
+
+  static int digitCount(long n) {
+    return String.valueOf(n).length();
+  }
+
+  static long pow10(int exp) {
+    long result = 1;
+    for (int i = 0; i < exp; i++) result *= 10;
+    return result;
+  }
+
+  // Overlapping ranges would count the same number twice, so collapse them first
+  public static long[][] mergeRanges(long[][] ranges) {
+    long[][] sorted = ranges.clone();
+    Arrays.sort(sorted, Comparator.comparingLong(r -> r[0]));
+
+    List<long[]> merged = new ArrayList<>();
+    for (long[] range : sorted) {
+      long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && range[0] <= last[1] + 1) {
+        last[1] = Math.max(last[1], range[1]);
+      } else {
+        merged.add(new long[] {range[0], range[1]});
+      }
+    }
+    return merged.toArray(long[][]::new);
   }
 
   public static boolean isInAnyRange(long candidate, long[][] ranges) {
@@ -43,6 +155,49 @@ public class Day2 {
     return false;
   }
 
+  public static boolean isInAnyRange(long candidate, RangeIndex index) {
+    return index.contains(candidate);
+  }
+
+  public static RangeIndex getRangeIndex(String filename) throws IOException {
+    return RangeIndex.of(getRanges(filename));
+  }
+
+  /**
+   * The ranges merged and sorted by start, split into two parallel arrays so lookups are a binary search.
+   */
+  record RangeIndex(long[] starts, long[] ends) {
+    static RangeIndex of(long[][] ranges) {
+      long[][] merged = mergeRanges(ranges);
+      long[] starts = new long[merged.length];
+      long[] ends = new long[merged.length];
+      for (int i = 0; i < merged.length; i++) {
+        starts[i] = merged[i][0];
+        ends[i] = merged[i][1];
+      }
+      return new RangeIndex(starts, ends);
+    }
+
+    boolean contains(long candidate) {
+      // Find the last range starting at or before the candidate, then check its end
+      int i = Arrays.binarySearch(starts, candidate);
+      if (i < 0) i = -i - 2;
+      return i >= 0 && candidate <= ends[i];
+    }
+
+    // Two pointer walk for candidates that are already in ascending order, no searching at all
+    long sumAscending(long[] candidates) {
+      long sum = 0;
+      int r = 0;
+      for (long candidate : candidates) {
+        while (r < ends.length && ends[r] < candidate) r++;
+        if (r == ends.length) break;
+        if (candidate >= starts[r]) sum += candidate;
+      }
+      return sum;
+    }
+  }
+
   public static List<Long> generatedDoubledNumbers(int maxHalfLength) {
     List<Long> doubledNumbers = new ArrayList<>();
     for (int len = 1; len <= maxHalfLength; len++) {
@@ -81,6 +236,59 @@ public class Day2 {
     return repeatedNumbers;
   }
 
+  // Same candidates as generatedDoubledNumbers, built with n * 10^len + n instead of string concat
+  public static long[] generateDoubledArray(int maxHalfLength) {
+    return IntStream.rangeClosed(1, Math.min(maxHalfLength, 9))
+            .parallel()
+            .mapToObj(len -> {
+              long start = pow10(len - 1);
+              long end = pow10(len);
+              long[] doubled = new long[(int) (end - start)];
+              for (long n = start; n < end; n++) {
+                doubled[(int) (n - start)] = n * end + n;
+              }
+              return doubled;
+            })
+            .flatMapToLong(LongStream::of)
+            .toArray();
+  }
+
+  // Same candidates as generateRepeatedNumbers, but as a sorted long[] with duplicates squeezed out.
+  // Each pattern length k is generated on its own thread.
+  public static long[] generateRepeatedArray(int maxDigits) {
+    // Anything past 18 digits doesn't fit in a long anyway
+    int digits = Math.min(maxDigits, 18);
+    long[] all = IntStream.rangeClosed(1, digits / 2)
+            .parallel()
+            .mapToObj(k -> {
+              long start = pow10(k - 1);
+              long end = pow10(k);
+              int patterns = (int) (end - start);
+              long[] numbers = new long[patterns * (digits / k - 1)];
+              int i = 0;
+              for (int r = 2; k * r <= digits; r++) {
+                // 1 + 10^k + 10^2k + ... repeated r times, so pattern * multiplier is the repeated number
+                long multiplier = 0;
+                for (int j = 0; j < r; j++) multiplier = multiplier * end + 1;
+                for (long pattern = start; pattern < end; pattern++) {
+                  numbers[i++] = pattern * multiplier;
+                }
+              }
+              return numbers;
+            })
+            .flatMapToLong(LongStream::of)
+            .toArray();
+
+    Arrays.parallelSort(all);
+    int unique = 0;
+    for (int i = 0; i < all.length; i++) {
+      if (unique == 0 || all[i] != all[unique - 1]) {
+        all[unique++] = all[i];
+      }
+    }
+    return Arrays.copyOf(all, unique);
+  }
+
   public static long[][] getRanges(String filename) throws IOException {
     String line = Files.readString(Path.of(filename)).trim();
     long[][] ranges = Arrays.stream(line.split(","))
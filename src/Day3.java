@@ -1,89 +1,302 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.LongStream;
 
 public class Day3 {
+  static final long CHUNK_BYTES = 1L << 24;
+
   public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("bench")) {
+      benchmarkCrossover();
+      return;
+    }
     String fileName = "./src/Day3Input.txt";
     List<String> lines =  readInput(fileName);
     int totalJoltage = getBasicJoltage(lines);
 
     System.out.println("The Part 1 Total Joltage is: " + totalJoltage);
+    System.out.println("The Part 1 Total Joltage (reduced) is: " + getBasicJoltageReduced(lines));
 
     long bestJoltage = getBigJoltage(lines);
     System.out.println("The Part 2 Best Joltage is: " + bestJoltage);
+
+    long[] scanned = scanParallel(fileName);
+    System.out.println("Parallel scan Part 1: " + scanned[0] + " | Part 2: " + scanned[1]);
   }
 
   public static int getBasicJoltage(List<String> lines) {
+    return (int) getJoltage(lines, 2);
+  }
+
+  public static long getBigJoltage(List<String> lines) {
+    return getJoltage(lines, 12);
+  }
+
+  // Best keep-digit number from every bank, summed. One stack gets reused for every line.
+  public static long getJoltage(List<String> lines, int keep) {
+    byte[] stack = new byte[keep];
+    long totalJoltage = 0;
+    for (String line : lines) {
+      totalJoltage += selectJoltage(line, keep, stack);
+    }
+    return totalJoltage;
+  }
+
+  // Greedy monotonic stack: drop a smaller digit whenever a bigger one shows up and we can still afford to drop.
+  static long selectJoltage(CharSequence line, int keep, byte[] stack) {
+    int n = line.length();
+    // Part 1 needs two batteries, so a one battery bank scores 0. Part 2 still keeps short banks whole.
+    if (keep == 2 && n < 2) return 0;
+    int toRemove = Math.max(0, n - keep);
+    int top = 0;
+
+    for (int i = 0; i < n; i++) {
+      byte digit = (byte) (line.charAt(i) - '0');
+      while (top > 0 && toRemove > 0 && stack[top - 1] < digit) {
+        top--;
+        toRemove--;
+      }
+      // Stack only ever holds keep digits, anything past that is one of our removals
+      if (top < keep) {
+        stack[top++] = digit;
+      } else {
+        toRemove--;
+      }
+    }
+
+    long joltage = 0;
+    for (int i = 0; i < top; i++) {
+      joltage = joltage * 10 + stack[i];
+    }
+    return joltage;
+  }
+
+  // A line of a mapped buffer seen as a CharSequence, so the byte scanner can feed the same selector as
+  // the String path. Repointed at each line instead of copying it.
+  static class BufferLine implements CharSequence {
+    private final ByteBuffer bytes;
+    private int from;
+    private int length;
+
+    BufferLine(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    BufferLine at(int from, int to) {
+      this.from = from;
+      this.length = to - from;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) bytes.get(from + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      byte[] copy = new byte[length];
+      bytes.get(from, copy);
+      return new String(copy, StandardCharsets.US_ASCII);
+    }
+  }
+
+  // Opt-in alternative to getBasicJoltage, which stays the keep = 2 case of the shared stack selector.
+  // `java Day3 bench` shows where this one is faster.
+  public static int getBasicJoltageReduced(List<String> lines) {
     int totalJoltage = 0;
     for (String line : lines) {
-      int n = line.length();
-      int[] digits = new int[n];
-      int[] maxRight = new int[n];
+      totalJoltage += selectBasicJoltage(line);
+    }
+    return totalJoltage;
+  }
 
-      // get my nums in order
-      for (int i = 0; i < n; i++) {
-        digits[i] = line.charAt(i) - '0';
+  // Part 1 as two max reductions instead of a suffix max: the tens digit is the biggest digit with something
+  // after it (first time it shows up), the ones digit is the biggest one after that. Both scans stop as soon
+  // as they see a 9, which real banks hit early. Only covers keep = 2; part 2's pop loop stays on the stack.
+  static int selectBasicJoltage(CharSequence line) {
+    int n = line.length();
+    if (n < 2) return 0;
+    int tens = '0';
+    int at = 0;
+    for (int i = 0; i < n - 1 && tens != '9'; i++) {
+      if (line.charAt(i) > tens) {
+        tens = line.charAt(i);
+        at = i;
       }
+    }
+    int ones = '0';
+    for (int i = at + 1; i < n && ones != '9'; i++) {
+      ones = Math.max(ones, line.charAt(i));
+    }
+    return (tens - '0') * 10 + (ones - '0');
+  }
 
-      int runningMax = -1;
-      // now starting from the right of the digits, figure out the highest number to the right of it.
-      for (int i = n - 1; i >= 0; i--) {
-        maxRight[i] = runningMax;
-        runningMax = Math.max(runningMax, digits[i]);
+  // Times the stack walk against the reductions for part 1 over the same Strings at a range of bank lengths.
+  // Run with `java Day3 bench`.
+  static void benchmarkCrossover() {
+    Random random = new Random(3);
+    int lastStackWin = -1;
+    int longest = 1 << 16;
+    for (int length = 8; length <= longest; length *= 2) {
+      int banks = Math.max(64, (1 << 21) / length);
+      List<String> lines = new ArrayList<>(banks);
+      for (int b = 0; b < banks; b++) {
+        char[] digits = new char[length];
+        // 1-8 only, so the reductions can't cheat with the early 9 exit
+        for (int i = 0; i < length; i++) digits[i] = (char) ('1' + random.nextInt(8));
+        lines.add(new String(digits));
       }
-      int bestJoltage = 0;
 
-      // now figure out which of these combos of 10s place digits[i] + maxRight[i] is biggest
-      for (int i = 0; i < n - 1; i++) {
-        int candidate = digits[i] * 10 + maxRight[i];
-        bestJoltage = Math.max(bestJoltage, candidate);
+      long stackNanos = Long.MAX_VALUE;
+      long reducedNanos = Long.MAX_VALUE;
+      for (int round = 0; round < 15; round++) {
+        long start = System.nanoTime();
+        long stackTotal = getJoltage(lines, 2);
+        stackNanos = Math.min(stackNanos, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        long reducedTotal = getBasicJoltageReduced(lines);
+        reducedNanos = Math.min(reducedNanos, System.nanoTime() - start);
+        if (stackTotal != reducedTotal) {
+          throw new IllegalStateException("Stack and reduction disagree at length " + length);
+        }
       }
-      // that's the #
-      totalJoltage += bestJoltage;
+
+      System.out.printf("length %6d: stack %8.1f ns/bank | reduced %8.1f ns/bank%n",
+              length, (double) stackNanos / banks, (double) reducedNanos / banks);
+      if (reducedNanos >= stackNanos) lastStackWin = length;
     }
+    // The crossover is where the reductions pull ahead and stay ahead for every longer bank we tried
+    String crossover = (lastStackWin == longest) ? "never" : String.valueOf(Math.max(8, lastStackWin * 2));
+    System.out.println("Reductions stay faster from length: " + crossover);
+  }
 
-    return totalJoltage;
+  public static long[] scanParallel(String filename) throws IOException {
+    return scanParallel(filename, CHUNK_BYTES);
   }
 
-  public static long getBigJoltage(List<String> lines) {
-    long totalJoltage = 0;
-    for (String line : lines) {
-      int n = line.length();
-      int k = n - 12; // Number of lines to remove
-      Stack<Integer> stack  = new Stack<>();
-
-      for (int i = 0; i < n; i++) {
-        int digit =  line.charAt(i) - '0'; // Get the digit using the - '0' trick.
-
-        // Guard against popping off the empty stack, still have k digits to remove, and the next number in the stack is
-        // less than our candidate next digit:
-        while(!stack.isEmpty() && k > 0 && stack.peek() < digit) {
-          stack.pop();
-          k--;
-        }
+  /**
+   * Maps the file, cuts it into newline aligned chunks and works out both parts for each chunk on the
+   * fork/join pool. Returns {part 1, part 2}.
+   */
+  public static long[] scanParallel(String filename, long chunkBytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      long[] bounds = lineAlignedBounds(channel, chunkBytes);
+      return ForkJoinPool.commonPool().invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1));
+    }
+  }
+
+  // Splits the list of chunks in half until there's just one left to scan
+  static class ChunkTask extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+    final FileChannel channel;
+    final long[] bounds;
+    final int from;
+    final int to;
+
+    ChunkTask(FileChannel channel, long[] bounds, int from, int to) {
+      this.channel = channel;
+      this.bounds = bounds;
+      this.from = from;
+      this.to = to;
+    }
 
-        // First digit gets in for free, the rest hit the ln 62 while block.
-        stack.push(digit);
+    @Override
+    protected long[] compute() {
+      if (to - from <= 1) {
+        return (to == from) ? new long[2] : scanChunk();
       }
+      int mid = (from + to) >>> 1;
+      ChunkTask left = new ChunkTask(channel, bounds, from, mid);
+      left.fork();
+      long[] right = new ChunkTask(channel, bounds, mid, to).compute();
+      long[] result = left.join();
+      return new long[] {result[0] + right[0], result[1] + right[1]};
+    }
 
-      // In case it's already sorted the way we want, need to make sure k is zeroed out.
-      while (k > 0 && !stack.isEmpty()) {
-        stack.pop();
-        k--;
+    private long[] scanChunk() {
+      MappedByteBuffer buffer;
+      try {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], bounds[from + 1] - bounds[from]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
 
-      StringBuilder sb = new StringBuilder();
-      for (int digit : stack) { // this just 'pops' bottom to top, so in our expected order
-        sb.append(digit);
+      BufferLine line = new BufferLine(buffer);
+      byte[] basicStack = new byte[2];
+      byte[] bigStack = new byte[12];
+      long basic = 0;
+      long big = 0;
+      int lineStart = 0;
+      int limit = buffer.limit();
+      for (int i = 0; i <= limit; i++) {
+        if (i < limit && buffer.get(i) != '\n') continue;
+        int lineEnd = i;
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+        if (lineEnd > lineStart) {
+          // Line is hot in cache by now, so both parts come from the same pass
+          basic += selectJoltage(line.at(lineStart, lineEnd), 2, basicStack);
+          big += selectJoltage(line, 12, bigStack);
+        }
+        lineStart = i + 1;
       }
-//      System.out.println("Line: " + line + " | k=" + (n-12) + " | result=" + sb.toString());
-      long bestJoltage = Long.parseLong(sb.toString());
-      totalJoltage += bestJoltage;
+      return new long[] {basic, big};
     }
+  }
 
-    return totalJoltage;
+  // Chunk edges every chunkBytes or so, each pushed forward until it sits just past a newline. Banks can be
+  // very long, so the probe reads a block at a time looking for the newline. Capping the chunk at 1GB keeps
+  // each one inside a single mapping.
+  static long[] lineAlignedBounds(FileChannel channel, long chunkBytes) throws IOException {
+    long size = channel.size();
+    LongStream.Builder bounds = LongStream.builder().add(0);
+    ByteBuffer probe = ByteBuffer.allocate(1 << 13);
+    long pos = 0;
+    while (pos < size) {
+      pos = Math.min(size, pos + Math.max(1, Math.min(chunkBytes, 1L << 30)));
+      // Look from pos - 1 so a chunk that already ends on a newline stays put
+      long scanFrom = pos - 1;
+      long edge = size;
+      while (pos < size && scanFrom < size) {
+        probe.clear();
+        int read = channel.read(probe, scanFrom);
+        if (read <= 0) break;
+        int newline = -1;
+        for (int i = 0; i < read && newline < 0; i++) {
+          if (probe.get(i) == '\n') newline = i;
+        }
+        if (newline >= 0) {
+          edge = scanFrom + newline + 1;
+          break;
+        }
+        scanFrom += read;
+      }
+      pos = Math.min(edge, size);
+      bounds.add(pos);
+    }
+    return bounds.build().toArray();
   }
 
   public static List<String> readInput(String filename)  throws IOException {
@@ -3,17 +3,377 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
 
 public class Day4 {
+  // A roll is reachable with fewer than this many rolls around it
+  static final int ACCESS_LIMIT = 4;
+
   public static void main(String[] args) throws IOException {
     List<String> lines = readInput("./src/Day4Input.txt");
     int accessibleCount = countAccessible(lines);
     System.out.println("The accessible paper rolls for Part 1 are: " + accessibleCount);
     int removableCount = countTotalRemovable(lines);
     System.out.println("In this Part 2 nightmare warehouse, we can remove " + removableCount + " Paper Rolls");
+    System.out.println("Worklist peeling agrees: " + countTotalRemovableWorklist(lines) + " Paper Rolls");
   }
 
   public static int countTotalRemovable(List<String> lines) {
+    RollBoard board = new RollBoard(lines);
+    int totalRemoved = 0;
+    int removed;
+    do {
+      removed = board.removeAccessible();
+      totalRemoved += removed;
+    } while (removed > 0);
+    return totalRemoved;
+  }
+
+  public static int countTotalRemovableParallel(List<String> lines) {
+    RollBoard board = new RollBoard(lines);
+    int totalRemoved = 0;
+    int removed;
+    do {
+      removed = board.removeAccessibleParallel();
+      totalRemoved += removed;
+    } while (removed > 0);
+    return totalRemoved;
+  }
+
+  /**
+   * Part 1 with any size of neighborhood: a roll is accessible when fewer than threshold rolls sit within
+   * radius of it (a (2r+1)x(2r+1) square, not counting itself). A summed area table makes every cell's
+   * count four lookups, whatever the radius.
+   */
+  public static int countAccessible(List<String> lines, int radius, int threshold) {
+    int height = lines.size();
+    int width = lines.stream().mapToInt(String::length).max().orElse(0);
+
+    // sums[y][x] = rolls in the rectangle above and left of (x, y), exclusive, so the edges are all 0
+    int[][] sums = new int[height + 1][width + 1];
+    for (int y = 0; y < height; y++) {
+      String line = lines.get(y);
+      int rowTotal = 0;
+      for (int x = 0; x < width; x++) {
+        if (x < line.length() && line.charAt(x) == '@') rowTotal++;
+        sums[y + 1][x + 1] = sums[y][x + 1] + rowTotal;
+      }
+    }
+
+    int accessibleCount = 0;
+    for (int y = 0; y < height; y++) {
+      String line = lines.get(y);
+      int top = Math.max(0, y - radius);
+      int bottom = Math.min(height, y + radius + 1);
+      for (int x = 0; x < line.length(); x++) {
+        if (line.charAt(x) != '@') continue;
+        int left = Math.max(0, x - radius);
+        int right = Math.min(width, x + radius + 1);
+        // Window total, minus the roll we're standing on
+        int neighborCount = sums[bottom][right] - sums[top][right] - sums[bottom][left] + sums[top][left] - 1;
+        if (neighborCount < threshold) accessibleCount++;
+      }
+    }
+    return accessibleCount;
+  }
+
+  public static int countAccessibleParallel(List<String> lines) {
+    RollBoard board = new RollBoard(lines);
+    return ForkJoinPool.commonPool().invoke(new BandTask(board, new long[board.height][board.words], 0, board.height));
+  }
+
+  // Part 2 as k-core peeling: count neighbors once, then only revisit the neighbors of whatever gets removed.
+  // Each roll goes through the queue at most once, so this is linear in the grid size however long the cascade.
+  public static int countTotalRemovableWorklist(List<String> lines) {
+    int height = lines.size();
+    int width = lines.stream().mapToInt(String::length).max().orElse(0);
+    boolean[] roll = new boolean[width * height];
+    for (int y = 0; y < height; y++) {
+      String line = lines.get(y);
+      for (int x = 0; x < line.length(); x++) {
+        roll[y * width + x] = line.charAt(x) == '@';
+      }
+    }
+
+    int[] neighbors = new int[width * height];
+    // queued means it's already on its way out, so nobody needs to decrement it again
+    boolean[] queued = new boolean[width * height];
+    int[] queue = new int[width * height];
+    int head = 0;
+    int tail = 0;
+
+    for (int cell = 0; cell < roll.length; cell++) {
+      if (!roll[cell]) continue;
+      int x = cell % width;
+      int y = cell / width;
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          if (dx == 0 && dy == 0) continue;
+          int nx = x + dx;
+          int ny = y + dy;
+          if (nx >= 0 && ny >= 0 && nx < width && ny < height && roll[ny * width + nx]) neighbors[cell]++;
+        }
+      }
+      if (neighbors[cell] < ACCESS_LIMIT) {
+        queued[cell] = true;
+        queue[tail++] = cell;
+      }
+    }
+
+    while (head < tail) {
+      int cell = queue[head++];
+      int x = cell % width;
+      int y = cell / width;
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          if (dx == 0 && dy == 0) continue;
+          int nx = x + dx;
+          int ny = y + dy;
+          if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+          int next = ny * width + nx;
+          if (roll[next] && !queued[next] && --neighbors[next] < ACCESS_LIMIT) {
+            queued[next] = true;
+            queue[tail++] = next;
+          }
+        }
+      }
+    }
+
+    // Everything that made it into the queue got removed
+    return tail;
+  }
+
+  public static int countAccessible(List<String> lines) {
+    RollBoard board = new RollBoard(lines);
+    long[] accessible = new long[board.words];
+    int accessibleCount = 0;
+    for (int y = 0; y < board.height; y++) {
+      board.accessibleRow(y, accessible);
+      for (long word : accessible) accessibleCount += Long.bitCount(word);
+    }
+    return accessibleCount;
+  }
+
+  /**
+   * The grid packed 64 cells to a long, one long[] per row. Bit (x % 64) of word (x / 64) is set when (x, y)
+   * holds a roll. Padding bits past the row width are always 0, so they never count as neighbors.
+   */
+  static class RollBoard {
+    final int width;
+    final int height;
+    final int words;
+    final long[][] rows;
+    private final long[] empty;
+    private long[][] pending;
+
+    RollBoard(List<String> lines) {
+      height = lines.size();
+      width = lines.stream().mapToInt(String::length).max().orElse(0);
+      words = (width + 63) >>> 6;
+      rows = new long[height][words];
+      empty = new long[words];
+      for (int y = 0; y < height; y++) {
+        String line = lines.get(y);
+        for (int x = 0; x < line.length(); x++) {
+          if (line.charAt(x) == '@') rows[y][x >>> 6] |= 1L << x;
+        }
+      }
+    }
+
+    // Writes the rolls in row y with fewer than 4 neighbors into out, 64 cells at a time.
+    // The adder network below is wired for ACCESS_LIMIT == 4 specifically.
+    void accessibleRow(int y, long[] out) {
+      long[] above = (y > 0) ? rows[y - 1] : empty;
+      long[] row = rows[y];
+      long[] below = (y + 1 < height) ? rows[y + 1] : empty;
+
+      for (int w = 0; w < words; w++) {
+        // Line every neighbor up over the cell it's next to
+        long aw = west(above, w), ac = above[w], ae = east(above, w);
+        long bw = west(below, w), bc = below[w], be = east(below, w);
+        long mw = west(row, w), me = east(row, w);
+
+        // Carry save adders: sum the 8 neighbor bits into ones plus four weight 2 carries
+        long aSum = aw ^ ac ^ ae;
+        long aCarry = (aw & ac) | (ae & (aw ^ ac));
+        long bSum = bw ^ bc ^ be;
+        long bCarry = (bw & bc) | (be & (bw ^ bc));
+        long mSum = mw ^ me;
+        long mCarry = mw & me;
+        long oneCarry = (aSum & bSum) | (mSum & (aSum ^ bSum));
+
+        // 4 or more neighbors means at least two of the weight 2 carries are set
+        long fourPlus = (aCarry & bCarry) | (mCarry & oneCarry) | ((aCarry | bCarry) & (mCarry | oneCarry));
+        out[w] = row[w] & ~fourPlus;
+      }
+    }
+
+    // One wave of Part 2: find everything accessible, then pull it all at once. Returns how many came out.
+    int removeAccessible() {
+      long[][] accessible = pending();
+      int removed = 0;
+      for (int y = 0; y < height; y++) {
+        accessibleRow(y, accessible[y]);
+      }
+      for (int y = 0; y < height; y++) {
+        for (int w = 0; w < words; w++) {
+          removed += Long.bitCount(accessible[y][w]);
+          rows[y][w] &= ~accessible[y][w];
+        }
+      }
+      return removed;
+    }
+
+    // Same wave, but bands of rows get marked on the fork/join pool. Nothing is removed until every band
+    // is done reading, so the neighbor rows each band peeks at are still this wave's rows.
+    int removeAccessibleParallel() {
+      long[][] accessible = pending();
+      int removed = ForkJoinPool.commonPool().invoke(new BandTask(this, accessible, 0, height));
+      IntStream.range(0, height).parallel().forEach(y -> {
+        for (int w = 0; w < words; w++) rows[y][w] &= ~accessible[y][w];
+      });
+      return removed;
+    }
+
+    // Scratch space for a wave's removals, kept around so waves don't reallocate it
+    private long[][] pending() {
+      if (pending == null) pending = new long[height][words];
+      return pending;
+    }
+
+    // Neighbor at x - 1 shifted up into x, borrowing the top bit of the previous word
+    private long west(long[] row, int w) {
+      return (row[w] << 1) | ((w > 0) ? row[w - 1] >>> 63 : 0);
+    }
+
+    // Neighbor at x + 1 shifted down into x, borrowing the bottom bit of the next word
+    private long east(long[] row, int w) {
+      return (row[w] >>> 1) | ((w + 1 < words) ? row[w + 1] << 63 : 0);
+    }
+  }
+
+  // Marks the accessible rolls for rows [from, to) into out and counts them, halving the band until it's small.
+  // Rows just outside the band are only read, so bands can run side by side.
+  static class BandTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+    static final int BAND_ROWS = 64;
+    final RollBoard board;
+    final long[][] out;
+    final int from;
+    final int to;
+
+    BandTask(RollBoard board, long[][] out, int from, int to) {
+      this.board = board;
+      this.out = out;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (to - from > BAND_ROWS) {
+        int mid = (from + to) >>> 1;
+        BandTask top = new BandTask(board, out, from, mid);
+        top.fork();
+        int bottom = new BandTask(board, out, mid, to).compute();
+        return top.join() + bottom;
+      }
+      int count = 0;
+      for (int y = from; y < to; y++) {
+        board.accessibleRow(y, out[y]);
+        for (long word : out[y]) count += Long.bitCount(word);
+      }
+      return count;
+    }
+  }
+
+  /**
+   * A map that stays live under edits. Every cell keeps a count of the rolls around it, so adding or pulling a
+   * roll only touches its 3x3 neighborhood and the accessible total is kept up to date as we go.
+   */
+  static class Warehouse {
+    final int width;
+    final int height;
+    private final boolean[] roll;
+    private final int[] neighbors;
+    private int accessible;
+
+    Warehouse(List<String> lines) {
+      height = lines.size();
+      width = lines.stream().mapToInt(String::length).max().orElse(0);
+      roll = new boolean[width * height];
+      neighbors = new int[width * height];
+      for (int y = 0; y < height; y++) {
+        String line = lines.get(y);
+        for (int x = 0; x < line.length(); x++) {
+          if (line.charAt(x) == '@') addRoll(x, y);
+        }
+      }
+    }
+
+    int accessibleCount() {
+      return accessible;
+    }
+
+    boolean hasRoll(int x, int y) {
+      return roll[index(x, y)];
+    }
+
+    // Returns the new accessible count
+    int addRoll(int x, int y) {
+      int cell = index(x, y);
+      if (roll[cell]) return accessible;
+
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          if (dx == 0 && dy == 0) continue;
+          int nx = x + dx;
+          int ny = y + dy;
+          if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+          int next = ny * width + nx;
+          // A neighbor reaching the limit just got boxed in
+          if (roll[next] && neighbors[next] == ACCESS_LIMIT - 1) accessible--;
+          neighbors[next]++;
+        }
+      }
+      roll[cell] = true;
+      if (neighbors[cell] < ACCESS_LIMIT) accessible++;
+      return accessible;
+    }
+
+    // Returns the new accessible count
+    int removeRoll(int x, int y) {
+      int cell = index(x, y);
+      if (!roll[cell]) return accessible;
+
+      if (neighbors[cell] < ACCESS_LIMIT) accessible--;
+      roll[cell] = false;
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          if (dx == 0 && dy == 0) continue;
+          int nx = x + dx;
+          int ny = y + dy;
+          if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+          int next = ny * width + nx;
+          neighbors[next]--;
+          // ...and dropping back under it frees it up
+          if (roll[next] && neighbors[next] == ACCESS_LIMIT - 1) accessible++;
+        }
+      }
+      return accessible;
+    }
+
+    private int index(int x, int y) {
+      if (x < 0 || y < 0 || x >= width || y >= height) {
+        throw new IllegalArgumentException("(" + x + ", " + y + ") is outside the " + width + "x" + height + " warehouse");
+      }
+      return y * width + x;
+    }
+  }
+
+  public static int countTotalRemovableByScan(List<String> lines) {
     char[][] mutableGrid = new char[lines.size()][];
     for (int i = 0; i < lines.size(); i++) {
       mutableGrid[i] = lines.get(i).toCharArray();
@@ -31,7 +391,7 @@ public class Day4 {
           // Still skip on empty squares
           if (mutableGrid[y][x] != '@') continue;
           int neighborCount = countAround(x, y, max, mutableGrid);
-          if (neighborCount < 4) {
+          if (neighborCount < ACCESS_LIMIT) {
             // We might be able to skip this, and just remove as we ID and increment our totalRemoved
             // ...but being cautious
             toRemove.add(new int[]{y, x});
@@ -53,7 +413,7 @@ public class Day4 {
     return totalRemoved;
   }
 
-  public static int countAccessible(List<String> lines) {
+  public static int countAccessibleByScan(List<String> lines) {
     int accessibleCount = 0;
     int max = lines.size();
     for (int y = 0; y < max; y++) {
@@ -63,7 +423,7 @@ public class Day4 {
         if (line.charAt(x) != '@') continue;
         int neighborCount = countAround(x, y, max, lines);
 
-        if (neighborCount < 4) accessibleCount++;
+        if (neighborCount < ACCESS_LIMIT) accessibleCount++;
       }
     }
 
@@ -1,26 +1,58 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class Day5 {
+  // "RIDX" then a format version, at the front of every binary range index file
+  static final int INDEX_MAGIC = 0x52494458;
+  static final int INDEX_VERSION = 1;
+  static final int INDEX_HEADER_BYTES = 16;
+
+  // How many candidate ids get sorted and merged at a time in bulk mode (512MB of longs)
+  static final int BULK_BLOCK_IDS = 1 << 26;
+
   public static void main(String[] args) throws IOException {
     Map<String, List<String>> mappedStrings = readInput("./src/Day5Input.txt");
     List<Range> ranges = mappedStrings.get("ranges")
                                       .stream()
                                       .map(Range::fromString)
                                       .toList();
-    List<Long> candidates = mappedStrings.get("candidates").stream().map(Long::parseLong).toList();
-    long freshCount = candidates.stream()
-                                .filter(id -> ranges.stream()
-                                                          .anyMatch(r -> r.contains(id)))
-                                                          .count();
+    List<Range> mergedRanges = mergeRanges(ranges);
+    RangeIndex index = RangeIndex.of(mergedRanges);
+
+    long freshCount = mappedStrings.get("candidates")
+                                   .stream()
+                                   .mapToLong(Long::parseLong)
+                                   .filter(index::contains)
+                                   .count();
 
     System.out.println("Part 1 Fresh Ingredient Count: " + freshCount);
+    System.out.println("Part 1 Fresh Ingredient Count (bulk): " + countFreshBulk("./src/Day5Input.txt"));
 
-    List<Range> mergedRanges = mergeRanges(ranges);
     long freshIngredientIdCount = mergedRanges.stream().mapToLong(Range::size).sum();
     System.out.println("Part 2 Fresh Ingredient Ids Count: " + freshIngredientIdCount);
+
+    IntervalSet live = new IntervalSet();
+    ranges.forEach(live::add);
+    System.out.println("Part 2 Fresh Ingredient Ids Count (live set): " + live.coveredSize());
+
+    Path indexFile = Files.createTempFile("day5", ".ridx");
+    try {
+      writeRangeIndex(mergedRanges, indexFile);
+      try (MappedRangeIndex mapped = MappedRangeIndex.open(indexFile)) {
+        System.out.println("Mapped index holds " + mapped.count() + " ranges covering " + mapped.coveredSize() + " ids");
+      }
+    } finally {
+      Files.deleteIfExists(indexFile);
+    }
   }
 
   record Range(long start, long end) {
@@ -38,6 +70,290 @@ public class Day5 {
     }
   }
 
+  /**
+   * The merged ranges flattened into two sorted primitive arrays, so a lookup is one binary search.
+   */
+  record RangeIndex(long[] starts, long[] ends) {
+    // Expects mergeRanges output: sorted and non-overlapping
+    static RangeIndex of(List<Range> merged) {
+      long[] starts = new long[merged.size()];
+      long[] ends = new long[merged.size()];
+      for (int i = 0; i < merged.size(); i++) {
+        starts[i] = merged.get(i).start();
+        ends[i] = merged.get(i).end();
+      }
+      return new RangeIndex(starts, ends);
+    }
+
+    boolean contains(long id) {
+      // Last range starting at or before id is the only one that could hold it
+      int i = Arrays.binarySearch(starts, id);
+      if (i < 0) i = -i - 2;
+      return i >= 0 && id <= ends[i];
+    }
+
+    // Merge join against the first n ids, which have to be sorted. Both sides only ever move forward.
+    long countContained(long[] sortedIds, int n) {
+      long count = 0;
+      int r = 0;
+      for (int i = 0; i < n && r < ends.length; i++) {
+        long id = sortedIds[i];
+        while (r < ends.length && ends[r] < id) r++;
+        if (r < ends.length && id >= starts[r]) count++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Part 1 for huge candidate lists. The file is read in fixed size chunks and ids are parsed straight into
+   * a long[] block; each full block is parallel sorted and merge joined against the ranges, then reused.
+   * Memory is the block plus the ranges, no matter how many ids there are.
+   */
+  public static long countFreshBulk(String filename) throws IOException {
+    return countFreshBulk(filename, BULK_BLOCK_IDS);
+  }
+
+  static long countFreshBulk(String filename, int blockIds) throws IOException {
+    List<Range> ranges = new ArrayList<>();
+    RangeIndex index = null;
+    // Starts small and doubles up to blockIds, so small files don't pay for the full block
+    long[] block = new long[Math.min(blockIds, 1 << 16)];
+    int filled = 0;
+    long freshCount = 0;
+
+    long value = 0;
+    long rangeStart = 0;
+    boolean lineHasData = false;
+
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+      boolean done = false;
+      while (!done) {
+        buffer.clear();
+        done = channel.read(buffer) < 0;
+        buffer.flip();
+
+        // A fake newline at the very end finishes off a last line with no newline of its own
+        int end = buffer.limit() + (done ? 1 : 0);
+        for (int i = 0; i < end; i++) {
+          byte b = (i < buffer.limit()) ? buffer.get(i) : (byte) '\n';
+          if (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            lineHasData = true;
+          } else if (b == '-') {
+            rangeStart = value;
+            value = 0;
+          } else if (b == '\n') {
+            if (!lineHasData) {
+              // Blank line: ranges are done, everything after is a candidate
+              if (index == null) index = RangeIndex.of(mergeRanges(ranges));
+            } else if (index == null) {
+              ranges.add(new Range(rangeStart, value));
+            } else {
+              if (filled == block.length && block.length < blockIds) {
+                block = Arrays.copyOf(block, (int) Math.min(blockIds, 2L * block.length));
+              }
+              block[filled++] = value;
+              if (filled == blockIds) {
+                Arrays.parallelSort(block);
+                freshCount += index.countContained(block, filled);
+                filled = 0;
+              }
+            }
+            value = 0;
+            lineHasData = false;
+          }
+        }
+      }
+    }
+
+    if (index != null && filled > 0) {
+      Arrays.parallelSort(block, 0, filled);
+      freshCount += index.countContained(block, filled);
+    }
+    return freshCount;
+  }
+
+  /**
+   * mergeRanges, but kept up to date one range at a time. Disjoint intervals live in a TreeMap of start to end
+   * (touching ones get joined like mergeRanges does), and the covered total is adjusted on every change.
+   */
+  static class IntervalSet {
+    private final TreeMap<Long, Long> intervals = new TreeMap<>();
+    private long coveredSize = 0;
+
+    void add(Range range) {
+      long start = range.start();
+      long end = range.end();
+
+      // Swallow an interval that starts before us but reaches (or touches) our start
+      Map.Entry<Long, Long> left = intervals.floorEntry(start);
+      if (left != null && left.getValue() >= start - 1) {
+        start = left.getKey();
+        end = Math.max(end, left.getValue());
+        intervals.remove(left.getKey());
+        coveredSize -= left.getValue() - left.getKey() + 1;
+      }
+
+      // ...and everything that starts inside us or right after
+      Map.Entry<Long, Long> next;
+      while ((next = intervals.ceilingEntry(start)) != null && next.getKey() <= end + 1) {
+        end = Math.max(end, next.getValue());
+        intervals.remove(next.getKey());
+        coveredSize -= next.getValue() - next.getKey() + 1;
+      }
+
+      intervals.put(start, end);
+      coveredSize += end - start + 1;
+    }
+
+    void remove(Range range) {
+      long start = range.start();
+      long end = range.end();
+
+      // An interval starting before us keeps its left part, and its right part too if it sticks out past us
+      Map.Entry<Long, Long> left = intervals.lowerEntry(start);
+      if (left != null && left.getValue() >= start) {
+        long leftEnd = left.getValue();
+        intervals.put(left.getKey(), start - 1);
+        if (leftEnd > end) {
+          intervals.put(end + 1, leftEnd);
+          coveredSize -= end - start + 1;
+          return;
+        }
+        coveredSize -= leftEnd - start + 1;
+      }
+
+      // Intervals starting inside us go, except for any tail hanging past our end
+      Map.Entry<Long, Long> next;
+      while ((next = intervals.ceilingEntry(start)) != null && next.getKey() <= end) {
+        intervals.remove(next.getKey());
+        if (next.getValue() > end) {
+          intervals.put(end + 1, next.getValue());
+          coveredSize -= end - next.getKey() + 1;
+        } else {
+          coveredSize -= next.getValue() - next.getKey() + 1;
+        }
+      }
+    }
+
+    boolean contains(long id) {
+      Map.Entry<Long, Long> floor = intervals.floorEntry(id);
+      return floor != null && floor.getValue() >= id;
+    }
+
+    long coveredSize() {
+      return coveredSize;
+    }
+
+    List<Range> toRanges() {
+      List<Range> ranges = new ArrayList<>();
+      intervals.forEach((start, end) -> ranges.add(new Range(start, end)));
+      return ranges;
+    }
+  }
+
+  /**
+   * Saves mergeRanges output so later runs can skip parsing, sorting and merging. Layout, all little endian:
+   * int magic, int version, long range count, then a (start, end) pair of longs per range in sorted order.
+   */
+  static void writeRangeIndex(List<Range> merged, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(merged.size());
+      for (Range range : merged) {
+        if (buffer.remaining() < 16) {
+          buffer.flip();
+          while (buffer.hasRemaining()) channel.write(buffer);
+          buffer.clear();
+        }
+        buffer.putLong(range.start()).putLong(range.end());
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+    }
+  }
+
+  /**
+   * A range index file mapped straight into memory. Lookups binary search the mapped pairs in place, so opening
+   * one costs the same whether it holds ten ranges or ten million.
+   */
+  static class MappedRangeIndex implements AutoCloseable {
+    private final FileChannel channel;
+    private final LongBuffer pairs;
+    private final int count;
+
+    private MappedRangeIndex(FileChannel channel, LongBuffer pairs, int count) {
+      this.channel = channel;
+      this.pairs = pairs;
+      this.count = count;
+    }
+
+    static MappedRangeIndex open(Path file) throws IOException {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+      try {
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.limit() < INDEX_HEADER_BYTES || mapped.getInt(0) != INDEX_MAGIC) {
+          throw new IOException(file + " is not a range index file");
+        }
+        if (mapped.getInt(4) != INDEX_VERSION) {
+          throw new IOException(file + " has unsupported range index version " + mapped.getInt(4));
+        }
+        long count = mapped.getLong(8);
+        if (count < 0 || INDEX_HEADER_BYTES + count * 16 != mapped.limit()) {
+          throw new IOException(file + " is truncated or has a bad range count");
+        }
+        LongBuffer pairs = mapped.position(INDEX_HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        return new MappedRangeIndex(channel, pairs, (int) count);
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    int count() {
+      return count;
+    }
+
+    long start(int i) {
+      return pairs.get(2 * i);
+    }
+
+    long end(int i) {
+      return pairs.get(2 * i + 1);
+    }
+
+    boolean contains(long id) {
+      // Find the last range starting at or before id
+      int lo = 0;
+      int hi = count - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (start(mid) <= id) {
+          found = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return found >= 0 && id <= end(found);
+    }
+
+    long coveredSize() {
+      long total = 0;
+      for (int i = 0; i < count; i++) total += end(i) - start(i) + 1;
+      return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
   static List<Range> mergeRanges(List<Range> ranges) {
     if (ranges.isEmpty()) return ranges;
 
@@ -1,9 +1,15 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 
 public class Day6 {
@@ -13,6 +19,410 @@ public class Day6 {
 
     long part2Result = rightToLeftMath("./src/Day6Input.txt");
     System.out.println("Part 2 Mindflayer Math Sum " + part2Result);
+
+    long[] bothParts = evaluateWorksheet("./src/Day6Input.txt");
+    System.out.println("Single pass Part 1: " + bothParts[0] + " | Part 2: " + bothParts[1]);
+    System.out.println("Parallel Part 2: " + rightToLeftMathParallel("./src/Day6Input.txt"));
+
+    MathReport checked = checkedMath("./src/Day6Input.txt");
+    System.out.println("Checked Part 1: " + checked.part1() + " | Part 2: " + checked.part2()
+            + " | " + checked.slowProblems() + " problems needed BigInteger");
+  }
+
+  record MathReport(BigInteger part1, BigInteger part2, int slowProblems) {}
+
+  /**
+   * Both parts with overflow checking. Every problem is tried on plain longs with the Math.*Exact calls first,
+   * and only a problem that actually overflows gets redone with BigInteger, so the normal case stays fast.
+   */
+  public static MathReport checkedMath(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      ByteBuffer[] lines = mapLines(channel);
+      if (lines.length < 2) return new MathReport(BigInteger.ZERO, BigInteger.ZERO, 0);
+      int width = sheetWidth(lines);
+
+      long[] fastTotals = new long[2];
+      BigInteger[] slowTotals = {BigInteger.ZERO, BigInteger.ZERO};
+      int slowProblems = 0;
+
+      // One tile of columns at a time, so the transposed copy stays small however wide the sheet is
+      for (int from = 0; from < width; from += ProblemSpanTask.SPAN_COLUMNS) {
+        Worksheet sheet = Worksheet.tile(lines, width, from, Math.min(width, from + ProblemSpanTask.SPAN_COLUMNS));
+        if (sheet == null) continue;
+
+        int col = 0;
+        while (col < sheet.width()) {
+          if (sheet.isBlank(col)) {
+            col++;
+            continue;
+          }
+          int start = col;
+          while (col < sheet.width() && !sheet.isBlank(col)) col++;
+
+          try {
+            long[] results = sheet.exactProblem(start, col);
+            for (int part = 0; part < 2; part++) {
+              try {
+                fastTotals[part] = Math.addExact(fastTotals[part], results[part]);
+              } catch (ArithmeticException e) {
+                // Only the running total overflowed, so bank it and keep going on longs
+                slowTotals[part] = slowTotals[part].add(BigInteger.valueOf(fastTotals[part]));
+                fastTotals[part] = results[part];
+              }
+            }
+          } catch (ArithmeticException e) {
+            BigInteger[] results = sheet.bigProblem(start, col);
+            slowTotals[0] = slowTotals[0].add(results[0]);
+            slowTotals[1] = slowTotals[1].add(results[1]);
+            slowProblems++;
+          }
+        }
+      }
+
+      return new MathReport(slowTotals[0].add(BigInteger.valueOf(fastTotals[0])),
+              slowTotals[1].add(BigInteger.valueOf(fastTotals[1])), slowProblems);
+    }
+  }
+
+  /**
+   * Part 2 off transposed copies of the number rows, so each column's digits sit next to each other in memory.
+   * Problems don't depend on each other, so spans of columns are transposed and evaluated on the fork/join
+   * pool and summed. Only one span's tile per worker is ever in memory, never the whole sheet.
+   */
+  public static long rightToLeftMathParallel(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      ByteBuffer[] lines = mapLines(channel);
+      if (lines.length < 2) return 0;
+      return ForkJoinPool.commonPool().invoke(new ProblemSpanTask(lines, sheetWidth(lines), 0, sheetWidth(lines)));
+    }
+  }
+
+  static int sheetWidth(ByteBuffer[] lines) {
+    int width = 0;
+    for (ByteBuffer line : lines) width = Math.max(width, line.limit());
+    return width;
+  }
+
+  // Straight off the mapped lines; only used to find where a span's problems start and stop
+  static boolean isBlankColumn(ByteBuffer[] lines, int col) {
+    for (int row = 0; row < lines.length - 1; row++) {
+      if (col < lines[row].limit() && lines[row].get(col) != ' ') return false;
+    }
+    return true;
+  }
+
+  /**
+   * A block of the number rows stored column major: column c of the tile is digits[c * rows] ..
+   * digits[c * rows + rows - 1], top to bottom. Short rows are padded out with spaces.
+   */
+  record Worksheet(byte[] digits, byte[] operators, int rows, int width) {
+    /**
+     * Transposes just the problems that start inside sheet columns [from, to). A problem carried in from the
+     * left is skipped, since the tile before this one owns it, and one still going at `to` is finished here.
+     * Returns null if no problem starts in the span.
+     */
+    static Worksheet tile(ByteBuffer[] lines, int sheetWidth, int from, int to) {
+      int start = from;
+      if (start > 0 && !isBlankColumn(lines, start - 1)) {
+        while (start < to && !isBlankColumn(lines, start)) start++;
+      }
+      int end = to;
+      if (end > start && !isBlankColumn(lines, end - 1)) {
+        while (end < sheetWidth && !isBlankColumn(lines, end)) end++;
+      }
+      if (start >= end) return null;
+
+      int rows = lines.length - 1;
+      int width = end - start;
+      if ((long) width * rows > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Problem at columns " + start + "-" + end + " is too big to transpose ("
+                + width + " columns x " + rows + " rows)");
+      }
+      byte[] digits = new byte[width * rows];
+      for (int row = 0; row < rows; row++) {
+        ByteBuffer line = lines[row];
+        for (int col = 0; col < width; col++) {
+          int sheetCol = start + col;
+          digits[col * rows + row] = (sheetCol < line.limit()) ? line.get(sheetCol) : (byte) ' ';
+        }
+      }
+
+      byte[] operators = new byte[width];
+      Arrays.fill(operators, (byte) ' ');
+      ByteBuffer operatorLine = lines[rows];
+      int operatorCount = Math.max(0, Math.min(width, operatorLine.limit() - start));
+      operatorLine.get(start, operators, 0, operatorCount);
+      return new Worksheet(digits, operators, rows, width);
+    }
+
+    boolean isBlank(int col) {
+      for (int i = col * rows, end = i + rows; i < end; i++) {
+        if (digits[i] != ' ') return false;
+      }
+      return true;
+    }
+
+    char operator(int start, int end) {
+      for (int col = start; col < end; col++) {
+        if (operators[col] == '+' || operators[col] == '*') return (char) operators[col];
+      }
+      return '+';
+    }
+
+    // {part 1, part 2} for the problem in columns [start, end), throwing ArithmeticException on any overflow
+    long[] exactProblem(int start, int end) {
+      char op = operator(start, end);
+      long rowTotal = (op == '+') ? 0 : 1;
+      for (int row = 0; row < rows; row++) {
+        long value = 0;
+        boolean hasDigits = false;
+        for (int col = start; col < end; col++) {
+          byte b = digits[col * rows + row];
+          if (b >= '0' && b <= '9') {
+            value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+            hasDigits = true;
+          }
+        }
+        if (hasDigits) rowTotal = (op == '+') ? Math.addExact(rowTotal, value) : Math.multiplyExact(rowTotal, value);
+      }
+
+      long columnTotal = (op == '+') ? 0 : 1;
+      for (int col = start; col < end; col++) {
+        long value = 0;
+        boolean hasDigits = false;
+        for (int i = col * rows, last = i + rows; i < last; i++) {
+          byte b = digits[i];
+          if (b >= '0' && b <= '9') {
+            value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+            hasDigits = true;
+          }
+        }
+        if (hasDigits) columnTotal = (op == '+') ? Math.addExact(columnTotal, value) : Math.multiplyExact(columnTotal, value);
+      }
+      return new long[] {rowTotal, columnTotal};
+    }
+
+    // Same as exactProblem, but on BigInteger so it can't overflow
+    BigInteger[] bigProblem(int start, int end) {
+      char op = operator(start, end);
+      BigInteger rowTotal = (op == '+') ? BigInteger.ZERO : BigInteger.ONE;
+      StringBuilder number = new StringBuilder();
+      for (int row = 0; row < rows; row++) {
+        number.setLength(0);
+        for (int col = start; col < end; col++) {
+          byte b = digits[col * rows + row];
+          if (b >= '0' && b <= '9') number.append((char) b);
+        }
+        if (number.length() > 0) {
+          BigInteger value = new BigInteger(number.toString());
+          rowTotal = (op == '+') ? rowTotal.add(value) : rowTotal.multiply(value);
+        }
+      }
+
+      BigInteger columnTotal = (op == '+') ? BigInteger.ZERO : BigInteger.ONE;
+      for (int col = start; col < end; col++) {
+        number.setLength(0);
+        for (int i = col * rows, last = i + rows; i < last; i++) {
+          if (digits[i] >= '0' && digits[i] <= '9') number.append((char) digits[i]);
+        }
+        if (number.length() > 0) {
+          BigInteger value = new BigInteger(number.toString());
+          columnTotal = (op == '+') ? columnTotal.add(value) : columnTotal.multiply(value);
+        }
+      }
+      return new BigInteger[] {rowTotal, columnTotal};
+    }
+
+    // Evaluates the problem starting at col and returns the column just past it (the separator)
+    int evaluate(int col, long[] result) {
+      char op = '+';
+      long sum = 0;
+      long product = 1;
+      for (; col < width && !isBlank(col); col++) {
+        if (operators[col] == '+' || operators[col] == '*') op = (char) operators[col];
+        long value = 0;
+        boolean hasDigits = false;
+        for (int i = col * rows, end = i + rows; i < end; i++) {
+          byte b = digits[i];
+          if (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            hasDigits = true;
+          }
+        }
+        if (hasDigits) {
+          sum += value;
+          product *= value;
+        }
+      }
+      result[0] = (op == '+') ? sum : product;
+      return col;
+    }
+  }
+
+  // Sums every problem that starts inside sheet columns [from, to), transposing just that span once it's small
+  // enough. Problems running past `to` are finished here and skipped by the next span.
+  static class ProblemSpanTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+    static final int SPAN_COLUMNS = 1 << 14;
+    final ByteBuffer[] lines;
+    final int width;
+    final int from;
+    final int to;
+
+    ProblemSpanTask(ByteBuffer[] lines, int width, int from, int to) {
+      this.lines = lines;
+      this.width = width;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from > SPAN_COLUMNS) {
+        int mid = (from + to) >>> 1;
+        ProblemSpanTask left = new ProblemSpanTask(lines, width, from, mid);
+        left.fork();
+        long right = new ProblemSpanTask(lines, width, mid, to).compute();
+        return left.join() + right;
+      }
+
+      Worksheet sheet = Worksheet.tile(lines, width, from, to);
+      if (sheet == null) return 0L;
+
+      long total = 0;
+      long[] result = new long[1];
+      int col = 0;
+      while (col < sheet.width()) {
+        if (sheet.isBlank(col)) {
+          col++;
+          continue;
+        }
+        col = sheet.evaluate(col, result);
+        total += result[0];
+      }
+      return total;
+    }
+  }
+
+  /**
+   * Both parts in one left to right sweep over the columns, for any number of rows (the last line is always the
+   * operators). Works on the raw bytes, so no regex and no Strings per cell. Returns {part 1, part 2}.
+   */
+  public static long[] evaluateWorksheet(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      ByteBuffer[] lines = mapLines(channel);
+      int numberRows = lines.length - 1;
+      if (numberRows < 1) return new long[2];
+      ByteBuffer operators = lines[numberRows];
+      int width = 0;
+      for (ByteBuffer line : lines) width = Math.max(width, line.limit());
+
+      // Part 1 builds one number per row, Part 2 one number per column. Both + and * are order independent,
+      // so the column numbers can be folded in as we go and we pick sum or product once we know the operator.
+      long[] rowValues = new long[numberRows];
+      boolean[] rowHasDigits = new boolean[numberRows];
+      long columnSum = 0;
+      long columnProduct = 1;
+      char op = '+';
+      boolean inProblem = false;
+      long part1 = 0;
+      long part2 = 0;
+
+      for (int col = 0; col <= width; col++) {
+        long columnValue = 0;
+        boolean columnHasDigits = false;
+        boolean blank = true;
+        for (int row = 0; col < width && row < numberRows; row++) {
+          ByteBuffer line = lines[row];
+          if (col >= line.limit()) continue;
+          byte b = line.get(col);
+          if (b == ' ') continue;
+          blank = false;
+          if (b >= '0' && b <= '9') {
+            rowValues[row] = rowValues[row] * 10 + (b - '0');
+            rowHasDigits[row] = true;
+            columnValue = columnValue * 10 + (b - '0');
+            columnHasDigits = true;
+          }
+        }
+
+        if (!blank) {
+          inProblem = true;
+          if (columnHasDigits) {
+            columnSum += columnValue;
+            columnProduct *= columnValue;
+          }
+          if (col < operators.limit() && (operators.get(col) == '+' || operators.get(col) == '*')) {
+            op = (char) operators.get(col);
+          }
+        } else if (inProblem) {
+          // A blank column (or the end) closes the problem
+          long rowResult = (op == '+') ? 0 : 1;
+          for (int row = 0; row < numberRows; row++) {
+            if (!rowHasDigits[row]) continue;
+            rowResult = (op == '+') ? rowResult + rowValues[row] : rowResult * rowValues[row];
+          }
+          part1 += rowResult;
+          part2 += (op == '+') ? columnSum : columnProduct;
+
+          Arrays.fill(rowValues, 0);
+          Arrays.fill(rowHasDigits, false);
+          columnSum = 0;
+          columnProduct = 1;
+          op = '+';
+          inProblem = false;
+        }
+      }
+      return new long[] {part1, part2};
+    }
+  }
+
+  // Every non-empty line of the file as its own buffer, without the newline (or a trailing \r).
+  // Files that fit share one mapping; anything past 2GB gets a mapping per line instead.
+  static ByteBuffer[] mapLines(FileChannel channel) throws IOException {
+    long size = channel.size();
+    ByteBuffer whole = (size <= Integer.MAX_VALUE) ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+
+    List<ByteBuffer> lines = new ArrayList<>();
+    ByteBuffer chunk = ByteBuffer.allocate(1 << 20);
+    long lineStart = 0;
+    long pos = 0;
+    while (pos < size) {
+      chunk.clear();
+      int read = channel.read(chunk, pos);
+      if (read <= 0) break;
+      for (int i = 0; i < read; i++) {
+        if (chunk.get(i) == '\n') {
+          addLine(lines, channel, whole, lineStart, pos + i);
+          lineStart = pos + i + 1;
+        }
+      }
+      pos += read;
+    }
+    // Last line might not end in a newline
+    addLine(lines, channel, whole, lineStart, size);
+    return lines.toArray(ByteBuffer[]::new);
+  }
+
+  private static void addLine(List<ByteBuffer> lines, FileChannel channel, ByteBuffer whole, long start, long end)
+          throws IOException {
+    if (end > start) {
+      byte last;
+      if (whole != null) {
+        last = whole.get((int) (end - 1));
+      } else {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, end - 1);
+        last = one.get(0);
+      }
+      if (last == '\r') end--;
+    }
+    if (end <= start) return;
+
+    int length = (int) (end - start);
+    lines.add(whole != null
+            ? whole.slice((int) start, length)
+            : channel.map(FileChannel.MapMode.READ_ONLY, start, length));
   }
 
   public static long squidMathSum(String filename) throws IOException {
@@ -1,6 +1,10 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class Day7 {
@@ -11,6 +15,301 @@ public class Day7 {
 
     long timelineCount = countTimelines("./src/Day7Input.txt");
     System.out.println("Part 2: " + timelineCount);
+
+    long[] both = countBoth("./src/Day7Input.txt");
+    System.out.println("Bitset Part 1: " + both[0] + " | Part 2: " + both[1]);
+
+    long[] streamed = countStreaming("./src/Day7Input.txt");
+    System.out.println("Streamed Part 1: " + streamed[0] + " | Part 2: " + streamed[1]);
+
+    SplitterIndex index = SplitterIndex.build("./src/Day7Input.txt");
+    long[] events = index.propagate(index.startCol);
+    System.out.println("Event driven Part 1: " + events[0] + " | Part 2: " + events[1]);
+
+    long[] everyStart = timelinesByStartColumn("./src/Day7Input.txt");
+    int bestCol = 0;
+    for (int col = 1; col < everyStart.length; col++) {
+      if (everyStart[col] > everyStart[bestCol]) bestCol = col;
+    }
+    System.out.println("Reverse DP Part 2 from S: " + everyStart[index.startCol]
+            + " | best entry column: " + bestCol + " with " + (everyStart.length > 0 ? everyStart[bestCol] : 0));
+  }
+
+  /**
+   * Part 2 answer for every column a beam could enter at, from one sweep bottom to top. below[col] is how many
+   * timelines a beam in col ends up as from the next row down; a splitter's column is worth the sum of its two
+   * neighbors, any other column is worth what's below it.
+   */
+  public static long[] timelinesByStartColumn(String filename) throws IOException {
+    List<String> lines = Files.readAllLines(Path.of(filename));
+    int rows = lines.size();
+    int cols = (rows == 0) ? 0 : lines.get(0).length();
+
+    // Past the bottom row every beam is exactly one timeline
+    long[] below = new long[cols];
+    long[] current = new long[cols];
+    Arrays.fill(below, 1);
+
+    // Row 0 is the S row, beams start under it
+    for (int row = rows - 1; row >= 1; row--) {
+      String line = lines.get(row);
+      for (int col = 0; col < cols; col++) {
+        if (col < line.length() && line.charAt(col) == '^') {
+          current[col] = ((col - 1 >= 0) ? below[col - 1] : 0) + ((col + 1 < cols) ? below[col + 1] : 0);
+        } else {
+          current[col] = below[col];
+        }
+      }
+      long[] swap = below;
+      below = current;
+      current = swap;
+    }
+    return below;
+  }
+
+  /**
+   * For each column, the rows its splitters sit on in ascending order. A beam can then jump straight down to the
+   * next splitter in its column instead of walking every empty row in between.
+   */
+  static class SplitterIndex {
+    final int cols;
+    final int startCol;
+    final int[][] splitterRows;
+    final int[] splitterCounts;
+
+    private SplitterIndex(int cols, int startCol, int[][] splitterRows, int[] splitterCounts) {
+      this.cols = cols;
+      this.startCol = startCol;
+      this.splitterRows = splitterRows;
+      this.splitterCounts = splitterCounts;
+    }
+
+    static SplitterIndex build(String filename) throws IOException {
+      try (BufferedReader reader = Files.newBufferedReader(Path.of(filename))) {
+        String first = reader.readLine();
+        if (first == null) return new SplitterIndex(0, -1, new int[0][], new int[0]);
+        int cols = first.length();
+        int[][] splitterRows = new int[cols][4];
+        int[] splitterCounts = new int[cols];
+
+        String line;
+        // Rows come in order, so each column's list is already sorted
+        for (int row = 1; (line = reader.readLine()) != null; row++) {
+          for (int col = line.indexOf('^'); col >= 0 && col < cols; col = line.indexOf('^', col + 1)) {
+            if (splitterCounts[col] == splitterRows[col].length) {
+              splitterRows[col] = Arrays.copyOf(splitterRows[col], splitterRows[col].length * 2);
+            }
+            splitterRows[col][splitterCounts[col]++] = row;
+          }
+        }
+        return new SplitterIndex(cols, first.indexOf('S'), splitterRows, splitterCounts);
+      }
+    }
+
+    // Row of the first splitter in col below afterRow, or -1 if the beam falls out the bottom
+    int nextSplitter(int col, int afterRow) {
+      int i = Arrays.binarySearch(splitterRows[col], 0, splitterCounts[col], afterRow + 1);
+      if (i < 0) i = -i - 1;
+      return (i < splitterCounts[col]) ? splitterRows[col][i] : -1;
+    }
+
+    /**
+     * Both parts for a beam entering at startCol, visiting only the splitters that actually get hit.
+     * Pending hits are kept in row order keyed by (row, col), so beams landing on the same splitter merge
+     * into one hit before it's processed. Returns {splits, timelines}.
+     */
+    long[] propagate(int startCol) {
+      long splits = 0;
+      long timelines = 0;
+      if (startCol < 0 || startCol >= cols) return new long[2];
+
+      TreeMap<Long, Long> pending = new TreeMap<>();
+      timelines += send(pending, startCol, 0, 1);
+
+      while (!pending.isEmpty()) {
+        Map.Entry<Long, Long> hit = pending.pollFirstEntry();
+        int row = (int) (hit.getKey() / cols);
+        int col = (int) (hit.getKey() % cols);
+        long count = hit.getValue();
+        splits++;
+        if (col - 1 >= 0) timelines += send(pending, col - 1, row, count);
+        if (col + 1 < cols) timelines += send(pending, col + 1, row, count);
+      }
+      return new long[] {splits, timelines};
+    }
+
+    // Drop a beam down col from fromRow. Returns the timelines that fall out the bottom, if there's no splitter.
+    private long send(TreeMap<Long, Long> pending, int col, int fromRow, long count) {
+      int row = nextSplitter(col, fromRow);
+      if (row < 0) return count;
+      pending.merge((long) row * cols + col, count, Long::sum);
+      return 0;
+    }
+  }
+
+  /**
+   * Both parts straight off the file channel, one row at a time. Each row's splitters go into the BeamField as the
+   * bytes go by and then the row is forgotten, so memory is O(width) however tall the manifold is.
+   * Returns {splits, timelines}.
+   */
+  public static long[] countStreaming(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+      BeamField field = null;
+      int col = 0;
+      int startCol = -1;
+
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          byte b = buffer.get();
+          if (b == '\r') continue;
+          if (b == '\n') {
+            if (field == null) {
+              // First row tells us the width and where S is
+              field = new BeamField(col, startCol);
+            } else if (col > 0) {
+              field.step();
+              field.clearSplitters();
+            }
+            col = 0;
+            continue;
+          }
+          if (field == null) {
+            if (b == 'S') startCol = col;
+          } else if (b == '^' && col < field.cols) {
+            field.addSplitter(col);
+          }
+          col++;
+        }
+        buffer.clear();
+        if (field != null && !field.hasBeams()) break;
+      }
+
+      // Last row might not end in a newline
+      if (field == null) {
+        field = new BeamField(col, startCol);
+      } else if (col > 0) {
+        field.step();
+      }
+      return new long[] {field.splits, field.timelineTotal()};
+    }
+  }
+
+  // Both parts from a single read of the file, on the bitset engine. Returns {splits, timelines}.
+  public static long[] countBoth(String filename) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(Path.of(filename))) {
+      String first = reader.readLine();
+      if (first == null) return new long[2];
+      BeamField field = new BeamField(first.length(), first.indexOf('S'));
+
+      String line;
+      while ((line = reader.readLine()) != null && field.hasBeams()) {
+        field.clearSplitters();
+        // Anything past row 0's width is off the manifold
+        for (int col = 0; col < Math.min(line.length(), field.cols); col++) {
+          if (line.charAt(col) == '^') field.addSplitter(col);
+        }
+        field.step();
+      }
+      return new long[] {field.splits, field.timelineTotal()};
+    }
+  }
+
+  /**
+   * One row of the manifold as bit masks, 64 columns to a long: which columns have a beam, which have a
+   * splitter. Splitting a whole row is then a few word ops, and the timeline counts ride along per column.
+   */
+  static class BeamField {
+    final int cols;
+    final int words;
+    final long[] beams;
+    final long[] splitters;
+    final long[] hits;
+    final long[] timelines;
+    private final long lastWordMask;
+    long splits = 0;
+
+    BeamField(int cols, int startCol) {
+      this.cols = cols;
+      words = (cols + 63) >>> 6;
+      beams = new long[words];
+      splitters = new long[words];
+      hits = new long[words];
+      timelines = new long[cols];
+      lastWordMask = (cols % 64 == 0) ? -1L : (1L << cols) - 1;
+      if (startCol >= 0) {
+        beams[startCol >>> 6] |= 1L << startCol;
+        timelines[startCol] = 1;
+      }
+    }
+
+    void clearSplitters() {
+      Arrays.fill(splitters, 0);
+    }
+
+    void addSplitter(int col) {
+      splitters[col >>> 6] |= 1L << col;
+    }
+
+    boolean hasBeams() {
+      for (long word : beams) {
+        if (word != 0) return true;
+      }
+      return false;
+    }
+
+    // Move every beam down through the current splitter row
+    void step() {
+      for (int w = 0; w < words; w++) {
+        hits[w] = beams[w] & splitters[w];
+        splits += Long.bitCount(hits[w]);
+      }
+
+      // Timelines only move where a beam hit a splitter, so we only visit those columns. Walking them left to
+      // right, a count headed into the next hit column has to wait until that column's own count is read.
+      long waiting = 0;
+      int waitingCol = -1;
+      for (int w = 0; w < words; w++) {
+        for (long bits = hits[w]; bits != 0; bits &= bits - 1) {
+          int col = (w << 6) + Long.numberOfTrailingZeros(bits);
+          long count = timelines[col];
+          timelines[col] = (waitingCol == col) ? waiting : 0;
+          if (col - 1 >= 0) timelines[col - 1] += count;
+          if (col + 1 < cols) {
+            if (isHit(col + 1)) {
+              waiting = count;
+              waitingCol = col + 1;
+            } else {
+              timelines[col + 1] += count;
+            }
+          }
+        }
+      }
+
+      // Beams that missed keep going, hits spill one column each way (carrying bits across word edges)
+      for (int w = 0; w < words; w++) {
+        long toRight = (hits[w] << 1) | ((w > 0) ? hits[w - 1] >>> 63 : 0);
+        long toLeft = (hits[w] >>> 1) | ((w + 1 < words) ? hits[w + 1] << 63 : 0);
+        beams[w] = (beams[w] & ~splitters[w]) | toRight | toLeft;
+      }
+      // Don't let the rightmost column spill off the edge into padding
+      if (words > 0) beams[words - 1] &= lastWordMask;
+    }
+
+    long timelineTotal() {
+      long total = 0;
+      for (int w = 0; w < words; w++) {
+        for (long bits = beams[w]; bits != 0; bits &= bits - 1) {
+          total += timelines[(w << 6) + Long.numberOfTrailingZeros(bits)];
+        }
+      }
+      return total;
+    }
+
+    private boolean isHit(int col) {
+      return (hits[col >>> 6] & (1L << col)) != 0;
+    }
   }
 
   public static long countSplits(String filename) throws IOException {
@@ -26,33 +325,35 @@ public class Day7 {
         break;
       }
     }
-    // Track which columns have active beams in a given row
-    // Use a Set to handle the overlap of beams
-
-    Set<Integer> activeBeams = new HashSet<>();
-    activeBeams.add(startCol);
+    // Track which columns have active beams in a given row. Two BitSets get swapped each row instead of
+    // building a new Set, and a BitSet handles the overlap of beams for free.
+    BitSet activeBeams = new BitSet(cols);
+    BitSet newBeams = new BitSet(cols);
+    activeBeams.set(startCol);
 
     long splitCount = 0;
 
     // row by row, skip S row
     for (int row = 1; row < rows; row++) {
       String line = lines.get(row);
-      Set<Integer> newBeams = new HashSet<>();
+      newBeams.clear();
 
-      for (int col: activeBeams) {
+      for (int col = activeBeams.nextSetBit(0); col >= 0; col = activeBeams.nextSetBit(col + 1)) {
         char cell = line.charAt(col);
 
         if (cell == '^') {
           // Beam hits a splitter, count it, and propagate
           splitCount++;
-          if (col - 1 >= 0) newBeams.add(col - 1);
-          if (col + 1 < cols) newBeams.add(col + 1);
+          if (col - 1 >= 0) newBeams.set(col - 1);
+          if (col + 1 < cols) newBeams.set(col + 1);
         } else {
           // Beam continues downward.
-          newBeams.add(col);
+          newBeams.set(col);
         }
       }
+      BitSet swap = activeBeams;
       activeBeams = newBeams;
+      newBeams = swap;
       if (activeBeams.isEmpty()) break;
     }
 
@@ -72,28 +373,50 @@ public class Day7 {
       }
     }
 
-    Map<Integer, Long> timelines = new HashMap<>();
-    timelines.put(startCol, 1L);
+    // Timeline counts per column plus a mask of which columns are live, both double buffered
+    long[] timelines = new long[cols];
+    long[] newTimelines = new long[cols];
+    BitSet active = new BitSet(cols);
+    BitSet newActive = new BitSet(cols);
+    timelines[startCol] = 1;
+    active.set(startCol);
 
     for (int row = 1; row < rows; row++) {
       String line = lines.get(row);
-      Map<Integer, Long> newTimelines = new HashMap<>();
+      newActive.clear();
 
-      for (Map.Entry<Integer, Long> entry: timelines.entrySet()) {
-        int col = entry.getKey();
-        long count = entry.getValue();
+      for (int col = active.nextSetBit(0); col >= 0; col = active.nextSetBit(col + 1)) {
+        long count = timelines[col];
+        // Zero it as we go so this buffer is clean when it comes back around
+        timelines[col] = 0;
         char cell = line.charAt(col);
         if (cell == '^') {
-          if (col - 1 >= 0) newTimelines.merge(col - 1, count, Long::sum);
-          if (col + 1 < cols) newTimelines.merge(col + 1, count, Long::sum);
+          if (col - 1 >= 0) {
+            newTimelines[col - 1] += count;
+            newActive.set(col - 1);
+          }
+          if (col + 1 < cols) {
+            newTimelines[col + 1] += count;
+            newActive.set(col + 1);
+          }
         } else {
-          newTimelines.merge(col, count, Long::sum);
+          newTimelines[col] += count;
+          newActive.set(col);
         }
       }
+      long[] swapCounts = timelines;
       timelines = newTimelines;
-      if (timelines.isEmpty()) break;
+      newTimelines = swapCounts;
+      BitSet swapActive = active;
+      active = newActive;
+      newActive = swapActive;
+      if (active.isEmpty()) break;
     }
 
-    return timelines.values().stream().mapToLong(Long::longValue).sum();
+    long total = 0;
+    for (int col = active.nextSetBit(0); col >= 0; col = active.nextSetBit(col + 1)) {
+      total += timelines[col];
+    }
+    return total;
   }
 }